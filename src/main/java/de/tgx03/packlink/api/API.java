@@ -1,15 +1,21 @@
 package de.tgx03.packlink.api;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.json.JSONArray;
 
 import javax.net.ssl.HttpsURLConnection;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
 
 /**
  * The class used for communicating with the Packlink API.
@@ -42,10 +48,23 @@ public final class API {
 	 */
 	private static final String ZIP_CODE = "zipcode";
 
+	/**
+	 * The encoders for service requests, one for each thread as they reuse their buffer.
+	 */
+	private static final ThreadLocal<RequestEncoder> ENCODERS = ThreadLocal.withInitial(() -> new RequestEncoder(API + CARRIERS));
+
 	/**
 	 * The API-key to be used for requests.
 	 */
 	private static String API_KEY;
+	/**
+	 * The cache for countries and postal codes, null if they shouldn't be cached.
+	 */
+	private static volatile ResponseCache CACHE;
+	/**
+	 * The cache for services, null if they shouldn't be cached.
+	 */
+	private static volatile QuoteCache QUOTES;
 
 	/**
 	 * Makes no sense to instantiate this class.
@@ -65,6 +84,26 @@ public final class API {
 		API_KEY = key;
 	}
 
+	/**
+	 * Set the directory in which the countries and postal codes get cached.
+	 * After that they only get downloaded again if they changed on the server.
+	 *
+	 * @param directory The directory to use, or null to disable the cache.
+	 * @throws IOException The directory couldn't be created.
+	 */
+	public static void setCacheDirectory(@Nullable Path directory) throws IOException {
+		CACHE = directory == null ? null : new ResponseCache(directory);
+	}
+
+	/**
+	 * Set the cache used for the services of a lane, so nodes sharing its backend don't query the same lane multiple times.
+	 *
+	 * @param cache The cache to use, or null to always query the API.
+	 */
+	public static void setQuoteCache(@Nullable QuoteCache cache) {
+		QUOTES = cache;
+	}
+
 	/**
 	 * Get all available service for a parcel to be shipped.
 	 *
@@ -75,6 +114,21 @@ public final class API {
 	 * @throws IOException Probably one of your arguments was invalid, but maybe something else went wrong, I dunno.
 	 */
 	public static Service[] queryServices(Address source, Address target, Parcel... parcels) throws IOException {
+		QuoteCache cache = QUOTES;
+		if (cache == null) return fetchServices(source, target, parcels);
+		return cache.get(source, target, () -> fetchServices(source, target, parcels), parcels);
+	}
+
+	/**
+	 * Gets all available services for a shipment directly from the API.
+	 *
+	 * @param source  The source address of the parcel.
+	 * @param target  The target address of the parcel.
+	 * @param parcels All the parcels to be included in this shipment.
+	 * @return All the available services for this shipment.
+	 * @throws IOException Probably one of your arguments was invalid, but maybe something else went wrong, I dunno.
+	 */
+	private static Service[] fetchServices(Address source, Address target, Parcel... parcels) throws IOException {
 		JSONArray arr = new JSONArray(queryURL(createServicesURL(source, target, parcels)));
 		Service[] result = new Service[arr.length()];
 		for (int i = 0; i < arr.length(); i++) {
@@ -92,16 +146,7 @@ public final class API {
 	 * @return The URL string to be used.
 	 */
 	private static String createServicesURL(Address source, Address target, Parcel... parcels) {
-		if (parcels.length == 0) throw new IllegalArgumentException("At least one parcel required");
-		StringBuilder builder = new StringBuilder(250);
-		builder.append(API);
-		builder.append(CARRIERS);
-		builder.append(source.toSourceAddress());
-		builder.append("&").append(target.toDestinationAddress());
-		for (int i = 0; i < parcels.length; i++) {
-			builder.append("&").append(parcels[i].toHTTPRequest(i));
-		}
-		return builder.toString();
+		return ENCODERS.get().encode(source, target, parcels).toString();
 	}
 
 	/**
@@ -110,7 +155,7 @@ public final class API {
 	 * @throws IOException Something went wrong during communication with the API. Read the error I guess.
 	 */
 	public static void initializeCountries() throws IOException {
-		JSONArray arr = new JSONArray(queryURL(API + COUNTRIES + LANGUAGE));
+		JSONArray arr = new JSONArray(queryReferenceURL(API + COUNTRIES + LANGUAGE));
 		for (int i = 0; i < arr.length(); i++) {
 			Country.getCountry(arr.getJSONObject(i));
 		}
@@ -131,7 +176,7 @@ public final class API {
 			new Thread(() -> {
 				String url = API + POSTAL_CODES + country.iso + LANGUAGE + "&q=";   // Don't ask me why the q is required.
 				try {
-					JSONArray arr = new JSONArray(queryURL(url));
+					JSONArray arr = new JSONArray(queryReferenceURL(url));
 					for (int i = 0; i < arr.length(); i++) {
 						String code = arr.getJSONObject(i).getString(ZIP_CODE);
 						if (!code.isBlank()) country.addPostalCode(arr.getJSONObject(i).getString(ZIP_CODE));
@@ -161,15 +206,83 @@ public final class API {
 	 */
 	@NotNull
 	private static String queryURL(@NotNull String url) throws IOException {
-		StringBuilder builder = new StringBuilder(25000);
+		return readResponse(openConnection(url));
+	}
+
+	/**
+	 * Queries a URL whose result rarely changes.
+	 * If a cache is set and it holds a previous response, the server only gets asked whether it changed,
+	 * and if it didn't, the response gets read from disk instead.
+	 *
+	 * @param url The URL to send to the API.
+	 * @return The string of the result.
+	 * @throws IOException Look at the message, no idea when this gets thrown.
+	 */
+	@NotNull
+	private static String queryReferenceURL(@NotNull String url) throws IOException {
+		ResponseCache cache = CACHE;
+		if (cache == null) return queryURL(url);
+		HttpsURLConnection connection = openConnection(url);
+		ResponseCache.Validators cached = cache.getValidators(url);
+		if (cached != null) {
+			if (!cached.eTag().isEmpty()) connection.setRequestProperty("If-None-Match", cached.eTag());
+			if (!cached.lastModified().isEmpty()) connection.setRequestProperty("If-Modified-Since", cached.lastModified());
+			if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				connection.disconnect();
+				try {
+					return cache.getBody(url);
+				} catch (IOException e) {
+					// The cached body is broken, so download it again without asking whether it changed.
+					connection = openConnection(url);
+				}
+			}
+		}
+		String result = readResponse(connection);
+		ResponseCache.Validators validators = ResponseCache.Validators.of(connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
+		if (validators != null) {
+			try {
+				cache.store(url, validators, result);
+			} catch (IOException e) {
+				e.printStackTrace();    // The download worked, a full disk shouldn't throw that away.
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Opens a connection to the API, which also tells the server it may compress the response.
+	 *
+	 * @param url The URL to connect to.
+	 * @return The connection.
+	 * @throws IOException The connection couldn't be opened.
+	 */
+	@NotNull
+	private static HttpsURLConnection openConnection(@NotNull String url) throws IOException {
 		HttpsURLConnection connection = (HttpsURLConnection) new URL(url).openConnection();
 		connection.setRequestProperty("Authorization", API_KEY);
+		connection.setRequestProperty("Accept-Encoding", "gzip");
 		connection.setRequestMethod("GET");
-		BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-		String next = reader.readLine();
-		do {
-			builder.append(next);
-		} while ((next = reader.readLine()) != null);
+		return connection;
+	}
+
+	/**
+	 * Reads the body of a response, decompressing it if the server compressed it.
+	 *
+	 * @param connection The connection to read from.
+	 * @return The string of the result.
+	 * @throws IOException Look at the message, no idea when this gets thrown.
+	 */
+	@NotNull
+	private static String readResponse(@NotNull HttpsURLConnection connection) throws IOException {
+		StringBuilder builder = new StringBuilder(25000);
+		InputStream stream = connection.getInputStream();
+		if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) stream = new GZIPInputStream(stream);
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+			String next;
+			while ((next = reader.readLine()) != null) {
+				builder.append(next);
+			}
+		}
 		return builder.toString();
 	}
 
@@ -10,23 +10,6 @@ import java.util.Objects;
  */
 public class Address {
 
-	/**
-	 * The string to indicate the following string specifies the source country to the API.
-	 */
-	private static final String FROM_COUNTRY = URLEncoder.encode("from[country]", StandardCharsets.UTF_8);
-	/**
-	 * The string to indicate the following string specifies the source zip to the API.
-	 */
-	private static final String FROM_ZIP = URLEncoder.encode("from[zip]", StandardCharsets.UTF_8);
-	/**
-	 * The string to indicate the following string specifies the target country to the API.
-	 */
-	private static final String TO_COUNTRY = URLEncoder.encode("to[country]", StandardCharsets.UTF_8);
-	/**
-	 * The string to indicate the following string specifies the target zip to the API.
-	 */
-	private static final String TO_ZIP = URLEncoder.encode("to[zip]", StandardCharsets.UTF_8);
-
 	/**
 	 * The country of this address.
 	 */
@@ -35,34 +18,30 @@ public class Address {
 	 * The zip of this address.
 	 */
 	public final String zip;
+	/**
+	 * The URL encoded zip, so it only needs to be encoded once no matter how many requests this address gets used in.
+	 */
+	private final byte[] encodedZip;
 
 	/**
 	 * Create a new address with a given country and zip code.
 	 *
-	 * @param country
-	 * @param zip
+	 * @param country The country of this address.
+	 * @param zip     The zip code of this address.
 	 */
 	public Address(Country country, String zip) {
 		this.country = country;
 		this.zip = zip;
+		this.encodedZip = URLEncoder.encode(zip, StandardCharsets.UTF_8).getBytes(StandardCharsets.US_ASCII);
 	}
 
 	/**
-	 * Converts this address to a string which in a web address gets used as the source address.
-	 *
-	 * @return The API-fitting string for the source address.
-	 */
-	protected String toSourceAddress() {
-		return FROM_COUNTRY + "=" + country.iso + "&" + FROM_ZIP + "=" + URLEncoder.encode(zip, StandardCharsets.UTF_8);
-	}
-
-	/**
-	 * Converts this address to a string which in a web address gets used as the target address.
+	 * Gets the URL encoded zip of this address.
 	 *
-	 * @return The API-fitting string for the target address.
+	 * @return The bytes of the encoded zip. Don't modify them.
 	 */
-	protected String toDestinationAddress() {
-		return TO_COUNTRY + "=" + country.iso + "&" + TO_ZIP + "=" + URLEncoder.encode(zip, StandardCharsets.UTF_8);
+	byte[] encodedZip() {
+		return encodedZip;
 	}
 
 	/**
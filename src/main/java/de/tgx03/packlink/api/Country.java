@@ -3,6 +3,8 @@ package de.tgx03.packlink.api;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -47,6 +49,10 @@ public class Country {
 	 * If the country doesn't use postal codes. It holds valid places.
 	 */
 	private final HashSet<String> validCodes = new HashSet<>();
+	/**
+	 * The ISO code as bytes, for writing it into request URLs.
+	 */
+	private final byte[] isoBytes;
 
 	/**
 	 * Create a new country from its JSON object.
@@ -57,6 +63,7 @@ public class Country {
 		this.name = query.getString(COUNTRY_NAME).intern();
 		this.iso = query.getString(ISO_CODE).intern();
 		this.hasPostalCodes = query.getBoolean(zips);
+		this.isoBytes = URLEncoder.encode(iso, StandardCharsets.UTF_8).getBytes(StandardCharsets.US_ASCII);
 	}
 
 	/**
@@ -70,6 +77,7 @@ public class Country {
 		this.name = name.intern();
 		this.iso = iso.intern();
 		this.hasPostalCodes = zips;
+		this.isoBytes = URLEncoder.encode(iso, StandardCharsets.UTF_8).getBytes(StandardCharsets.US_ASCII);
 	}
 
 	/**
@@ -143,6 +151,15 @@ public class Country {
 		return validCodes.contains(code);
 	}
 
+	/**
+	 * Gets the URL encoded ISO code of this country.
+	 *
+	 * @return The bytes of the ISO code. Don't modify them.
+	 */
+	byte[] isoBytes() {
+		return isoBytes;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (o instanceof Country c) {
@@ -0,0 +1,432 @@
+package de.tgx03.packlink.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A quote backend storing the quotes in a directory, which can be shared by all the processes on a machine
+ * or by multiple machines through a network file system.
+ * Every quote gets its own file, which gets replaced atomically.
+ * Invalidations get appended to a log file in the same directory, which every backend polls for new entries.
+ * A new log file gets started every few minutes, so old ones can simply be deleted.
+ * The lease to load a lane is a lock file holding its expiry, which gets created as a hard link,
+ * so it either exists with its full content or not at all.
+ * Expired quotes and locks as well as old logs get swept regularly by every backend.
+ */
+public final class FileQuoteBackend implements QuoteBackend, Closeable {
+
+	/**
+	 * The file extension of the quote files.
+	 */
+	private static final String EXTENSION = ".quote";
+	/**
+	 * The start of the names of the invalidation logs, followed by their period.
+	 */
+	private static final String LOG_PREFIX = "invalidations-";
+	/**
+	 * The file extension of the invalidation logs.
+	 */
+	private static final String LOG_EXTENSION = ".log";
+	/**
+	 * How long in milliseconds invalidations get appended to the same log before a new one gets started.
+	 */
+	private static final long ROTATION = 10 * 60 * 1000;
+	/**
+	 * How often in milliseconds the directory gets swept.
+	 */
+	private static final long SWEEP_INTERVAL = 60 * 1000;
+	/**
+	 * The file extension of the lock files.
+	 */
+	private static final String LOCK = ".lock";
+	/**
+	 * The file extension of files moved aside to check whether they can be deleted.
+	 */
+	private static final String STALE = ".stale";
+	/**
+	 * The file extension of files getting written before being moved to their place.
+	 */
+	private static final String TEMP = ".tmp";
+	/**
+	 * How many bytes a lock file holds, meaning its expiry and the token of its owner.
+	 */
+	private static final int LOCK_SIZE = 2 * Long.BYTES;
+
+	/**
+	 * The directory the quotes get stored in.
+	 */
+	private final Path directory;
+	/**
+	 * The ID of this backend in the invalidation logs, so it can skip its own invalidations.
+	 */
+	private final String node = Long.toHexString(ThreadLocalRandom.current().nextLong());
+	/**
+	 * All the listeners getting notified about invalidations.
+	 */
+	private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+	/**
+	 * The tokens of all the leases this backend currently holds, so it only ever releases its own ones.
+	 */
+	private final ConcurrentHashMap<String, Long> leases = new ConcurrentHashMap<>();
+	/**
+	 * The thread polling the log for new invalidations and sweeping the directory.
+	 */
+	private final ScheduledExecutorService poller;
+	/**
+	 * How far the logs of the current and the previous period have already been read.
+	 * Only gets accessed by the polling thread.
+	 */
+	private final HashMap<Long, Long> logPositions = new HashMap<>();
+
+	/**
+	 * Creates a new backend in a given directory. If it doesn't exist yet, it gets created.
+	 *
+	 * @param directory    The directory to store the quotes in.
+	 * @param pollInterval How often to check for invalidations by other nodes.
+	 * @throws IOException The directory couldn't be created.
+	 */
+	public FileQuoteBackend(@NotNull Path directory, @NotNull Duration pollInterval) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		long period = System.currentTimeMillis() / ROTATION;
+		for (long p = period - 1; p <= period; p++) {
+			Path log = logOf(p);
+			logPositions.put(p, Files.exists(log) ? Files.size(log) : 0);  // Anything invalidated before has nothing to do with this node.
+		}
+		this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Quote invalidation poller");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = pollInterval.toMillis();
+		poller.scheduleWithFixedDelay(this::pollInvalidations, interval, interval, TimeUnit.MILLISECONDS);
+		poller.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL, SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Gets the file a given key gets stored in.
+	 *
+	 * @param key The key of the lane.
+	 * @return The file of this key.
+	 */
+	@NotNull
+	private Path fileOf(@NotNull String key) {
+		return directory.resolve(ResponseCache.hash(key) + EXTENSION);
+	}
+
+	/**
+	 * Gets the lock file of a given key.
+	 *
+	 * @param key The key of the lane.
+	 * @return The lock file of this key.
+	 */
+	@NotNull
+	private Path lockOf(@NotNull String key) {
+		return directory.resolve(ResponseCache.hash(key) + LOCK);
+	}
+
+	/**
+	 * Gets the invalidation log of a given period.
+	 *
+	 * @param period The period, meaning the time divided by the rotation interval.
+	 * @return The log of this period.
+	 */
+	@NotNull
+	private Path logOf(long period) {
+		return directory.resolve(LOG_PREFIX + period + LOG_EXTENSION);
+	}
+
+	@Override
+	@Nullable
+	public Entry get(@NotNull String key) throws IOException {
+		Path file = fileOf(key);
+		byte[] content;
+		try {
+			content = Files.readAllBytes(file);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		if (content.length < Long.BYTES) return null;   // Not possible with atomic moves, but who knows what's on that file system.
+		long expiresAt = ByteBuffer.wrap(content).getLong();
+		if (expiresAt <= System.currentTimeMillis()) return null;    // The sweep deletes it, doing it here could hit a fresh quote another node just moved there.
+		byte[] data = new byte[content.length - Long.BYTES];
+		System.arraycopy(content, Long.BYTES, data, 0, data.length);
+		return new Entry(data, expiresAt);
+	}
+
+	@Override
+	public void put(@NotNull String key, @NotNull Entry entry) throws IOException {
+		Path file = fileOf(key);
+		Path temp = Files.createTempFile(directory, file.getFileName().toString(), TEMP);
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeLong(entry.expiresAt());
+				out.write(entry.data());
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Deletes the quote of a lane and appends the invalidation to the current log.
+	 * Every line holds the time, the ID of this backend and the key.
+	 * The listeners of this backend get notified right away, the ones of other nodes once they polled the log.
+	 *
+	 * @param key The key of the lane.
+	 * @throws IOException The quote couldn't be deleted or the log couldn't be written.
+	 */
+	@Override
+	public void invalidate(@NotNull String key) throws IOException {
+		if (key.indexOf('\n') >= 0) throw new IllegalArgumentException("Keys may not contain line breaks");
+		long time = System.currentTimeMillis();
+		Files.deleteIfExists(fileOf(key));
+		notifyListeners(key, time);
+		// A single write in append mode doesn't get mixed up with the writes of other processes.
+		try (FileChannel channel = FileChannel.open(logOf(time / ROTATION), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			channel.write(ByteBuffer.wrap((time + " " + node + " " + key + "\n").getBytes(StandardCharsets.UTF_8)));
+		}
+	}
+
+	@Override
+	public boolean tryAcquireLoad(@NotNull String key, long lease) throws IOException {
+		Path lock = lockOf(key);
+		long token = ThreadLocalRandom.current().nextLong();
+		byte[] content = ByteBuffer.allocate(LOCK_SIZE).putLong(System.currentTimeMillis() + lease).putLong(token).array();
+		Path temp = Files.createTempFile(directory, lock.getFileName().toString(), TEMP);
+		try {
+			Files.write(temp, content);
+			for (int attempt = 0; attempt < 2; attempt++) {
+				try {
+					link(lock, temp);
+					leases.put(key, token);
+					return true;
+				} catch (FileAlreadyExistsException e) {
+					if (!removeStaleLock(lock)) return false;
+				}
+			}
+			return false;   // Another node took over the stale lock first.
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Creates a hard link, which fails if the link already exists.
+	 *
+	 * @param link     The link to create.
+	 * @param existing The file to link to.
+	 * @throws FileAlreadyExistsException The link already exists.
+	 * @throws IOException                The link couldn't be created, also if the file system doesn't support hard links.
+	 */
+	private static void link(@NotNull Path link, @NotNull Path existing) throws IOException {
+		try {
+			Files.createLink(link, existing);
+		} catch (UnsupportedOperationException e) {
+			throw new IOException("The file system doesn't support hard links", e);
+		}
+	}
+
+	/**
+	 * Removes a lock whose lease already ran out, because its owner died or took way too long.
+	 *
+	 * @param lock The lock file.
+	 * @return Whether there is no lock anymore.
+	 * @throws IOException The lock couldn't be read or moved.
+	 */
+	private boolean removeStaleLock(@NotNull Path lock) throws IOException {
+		byte[] seen;
+		try {
+			seen = Files.readAllBytes(lock);
+		} catch (NoSuchFileException e) {
+			return true;
+		}
+		if (seen.length == LOCK_SIZE && ByteBuffer.wrap(seen).getLong() > System.currentTimeMillis()) return false;
+		return removeIfUnchanged(lock, seen);
+	}
+
+	/**
+	 * Removes a file, but only if it still has the content that was seen before.
+	 * The file gets moved aside first and then checked, as another node may have replaced it in the meantime.
+	 * If it was replaced, it gets moved back.
+	 *
+	 * @param file The file to remove.
+	 * @param seen The content that was seen.
+	 * @return Whether the file is gone.
+	 * @throws IOException The file couldn't be read or moved.
+	 */
+	private boolean removeIfUnchanged(@NotNull Path file, @NotNull byte[] seen) throws IOException {
+		Path aside = directory.resolve(file.getFileName() + "." + ThreadLocalRandom.current().nextLong() + STALE);
+		try {
+			Files.move(file, aside, StandardCopyOption.ATOMIC_MOVE);
+		} catch (NoSuchFileException e) {
+			return true;
+		}
+		try {
+			if (Arrays.equals(seen, Files.readAllBytes(aside))) return true;
+			try {
+				link(file, aside);
+			} catch (FileAlreadyExistsException ignored) {
+				// Yet another node created a new one, which is newer anyway.
+			}
+			return false;
+		} finally {
+			Files.deleteIfExists(aside);
+		}
+	}
+
+	/**
+	 * Releases a lease by deleting its lock, but only if the lock still holds the token of this backend.
+	 * If the lease ran out and another node took over, its lock stays.
+	 *
+	 * @param key The key of the lane.
+	 * @throws IOException The lock couldn't be read or deleted.
+	 */
+	@Override
+	public void releaseLoad(@NotNull String key) throws IOException {
+		Long token = leases.remove(key);
+		if (token == null) return;
+		Path lock = lockOf(key);
+		byte[] content;
+		try {
+			content = Files.readAllBytes(lock);
+		} catch (NoSuchFileException e) {
+			return;
+		}
+		if (content.length == LOCK_SIZE && ByteBuffer.wrap(content).getLong(Long.BYTES) == token) Files.deleteIfExists(lock);
+	}
+
+	@Override
+	public void addInvalidationListener(@NotNull InvalidationListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Tells all the listeners about an invalidation.
+	 *
+	 * @param key  The key of the lane.
+	 * @param time When it got invalidated.
+	 */
+	private void notifyListeners(@NotNull String key, long time) {
+		for (InvalidationListener listener : listeners) {
+			listener.invalidated(key, time);
+		}
+	}
+
+	/**
+	 * Reads all the invalidations appended to the logs of the current and the previous period since the last time.
+	 * The previous one keeps getting read, as a node whose clock is a bit behind may still append to it.
+	 */
+	private void pollInvalidations() {
+		long period = System.currentTimeMillis() / ROTATION;
+		logPositions.keySet().removeIf(p -> p < period - 1);
+		for (long p = period - 1; p <= period; p++) {
+			try {
+				logPositions.put(p, readLog(logOf(p), logPositions.getOrDefault(p, 0L)));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Reads the invalidations of a log from a given position and notifies the listeners about the ones of other nodes.
+	 *
+	 * @param log      The log to read.
+	 * @param position How far the log has already been read.
+	 * @return How far the log has been read now.
+	 * @throws IOException The log couldn't be read.
+	 */
+	private long readLog(@NotNull Path log, long position) throws IOException {
+		if (!Files.exists(log)) return 0;
+		long size = Files.size(log);
+		if (size < position) position = 0;    // Somebody truncated the log.
+		if (size == position) return position;
+		byte[] appended = new byte[(int) (size - position)];
+		ByteBuffer buffer = ByteBuffer.wrap(appended);
+		try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+			while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) ;
+		}
+		int lineStart = 0;
+		for (int i = 0; i < appended.length; i++) {
+			if (appended[i] == '\n') {
+				String[] line = new String(appended, lineStart, i - lineStart, StandardCharsets.UTF_8).split(" ", 3);
+				lineStart = i + 1;
+				if (line.length < 3 || line[1].equals(node)) continue;  // Broken or written by this node, which already told its listeners.
+				try {
+					notifyListeners(line[2], Long.parseLong(line[0]));
+				} catch (NumberFormatException ignored) {
+					// Also broken.
+				}
+			}
+		}
+		return position + lineStart;   // A line that isn't finished yet gets read again next time.
+	}
+
+	/**
+	 * Deletes everything from the directory that isn't needed anymore.
+	 * Expired quotes and locks only get deleted if they're still the ones seen as expired,
+	 * so a fresh one another node just wrote stays. Logs get deleted once no node appends to or reads them anymore,
+	 * and leftovers of crashed writes once they're older than a rotation.
+	 */
+	void sweep() {
+		long now = System.currentTimeMillis();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					if (name.endsWith(EXTENSION)) {
+						byte[] content = Files.readAllBytes(file);
+						if (content.length < Long.BYTES || ByteBuffer.wrap(content).getLong() <= now) removeIfUnchanged(file, content);
+					} else if (name.endsWith(LOCK)) {
+						removeStaleLock(file);
+					} else if (name.startsWith(LOG_PREFIX) && name.endsWith(LOG_EXTENSION)) {
+						long period = Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_EXTENSION.length()));
+						if (period < now / ROTATION - 2) Files.deleteIfExists(file);
+					} else if (name.endsWith(TEMP) || name.endsWith(STALE)) {
+						if (Files.getLastModifiedTime(file).toMillis() < now - ROTATION) Files.deleteIfExists(file);
+					}
+				} catch (NoSuchFileException ignored) {
+					// Another node swept it first.
+				} catch (IOException | NumberFormatException e) {
+					e.printStackTrace();
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Stops polling for invalidations and sweeping.
+	 */
+	@Override
+	public void close() {
+		poller.shutdownNow();
+	}
+}
@@ -11,27 +11,6 @@ import java.util.Objects;
  */
 public class Parcel {
 
-	/**
-	 * The string specifying which package this is.
-	 */
-	private static final String PACKAGE = URLEncoder.encode("packages[", StandardCharsets.UTF_8);
-	/**
-	 * The string specifying the weight of the package.
-	 */
-	private static final String WEIGHT = URLEncoder.encode("][weight]", StandardCharsets.UTF_8);
-	/**
-	 * The string specifying the height of the package.
-	 */
-	private static final String HEIGHT = URLEncoder.encode("][height]", StandardCharsets.UTF_8);
-	/**
-	 * The string specifying the length of the package.
-	 */
-	private static final String LENGTH = URLEncoder.encode("][length]", StandardCharsets.UTF_8);
-	/**
-	 * The string specifying the width of the package.
-	 */
-	private static final String WIDTH = URLEncoder.encode("][width]", StandardCharsets.UTF_8);
-
 	/**
 	 * The height of this package.
 	 */
@@ -48,6 +27,10 @@ public class Parcel {
 	 * The weight of this package.
 	 */
 	public final String weight;
+	/**
+	 * The URL encoded weight, for writing it into request URLs.
+	 */
+	private final byte[] weightBytes;
 
 	/**
 	 * Creates a new parcel with only the weight set.
@@ -57,6 +40,7 @@ public class Parcel {
 	 */
 	public Parcel(@NotNull String weight) {
 		this.weight = weight;
+		this.weightBytes = URLEncoder.encode(weight, StandardCharsets.UTF_8).getBytes(StandardCharsets.US_ASCII);
 		this.height = -1;
 		this.length = -1;
 		this.width = -1;
@@ -72,37 +56,20 @@ public class Parcel {
 	 */
 	public Parcel(@NotNull String weight, short height, short length, short width) {
 		this.weight = weight;
+		this.weightBytes = URLEncoder.encode(weight, StandardCharsets.UTF_8).getBytes(StandardCharsets.US_ASCII);
 		this.length = length;
 		this.width = width;
 		this.height = height;
 	}
 
 	/**
-	 * Creates a string that can be appended to an URL if this is the only package in the shipment.
-	 *
-	 * @return The string to be used in an URL.
-	 */
-	@NotNull
-	protected String toHTTPRequest() {
-		return toHTTPRequest(0);
-	}
-
-	/**
-	 * Creates a string that can be appended to an URL which also specifies which package this is.
+	 * Gets the URL encoded weight of this parcel.
 	 *
-	 * @param parcelID The ID of this parcel.
-	 * @return The string to be used in an URL.
+	 * @return The bytes of the weight. Don't modify them.
 	 */
 	@NotNull
-	protected String toHTTPRequest(int parcelID) {
-		StringBuilder builder = new StringBuilder(67);
-		builder.append(PACKAGE).append(parcelID).append(WEIGHT).append("=").append(weight);
-		if (height > 0 && width > 0 && length > 0) {
-			builder.append("&").append(PACKAGE).append(parcelID).append(HEIGHT).append("=").append(height);
-			builder.append("&").append(PACKAGE).append(parcelID).append(LENGTH).append("=").append(length);
-			builder.append("&").append(PACKAGE).append(parcelID).append(WIDTH).append("=").append(width);
-		}
-		return builder.toString();
+	byte[] weightBytes() {
+		return weightBytes;
 	}
 
 	@Override
@@ -0,0 +1,110 @@
+package de.tgx03.packlink.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable engine calculating the prices of services including tax and markup depending on the destination country.
+ * As nothing in here ever changes, one engine can be used by as many threads as you like,
+ * and different engines can be used for different markets at the same time.
+ */
+public final class PricingEngine {
+
+	/**
+	 * The rules for specific countries.
+	 */
+	private final Map<Country, TaxRule> rules;
+	/**
+	 * The rule used for all countries without a specific rule.
+	 */
+	public final TaxRule defaultRule;
+
+	/**
+	 * Creates a new engine applying the same rule to every country.
+	 *
+	 * @param defaultRule The rule to apply.
+	 */
+	public PricingEngine(@NotNull TaxRule defaultRule) {
+		this(defaultRule, Collections.emptyMap());
+	}
+
+	/**
+	 * Creates a new engine with rules for specific countries.
+	 *
+	 * @param defaultRule The rule for all countries not contained in the map.
+	 * @param rules       The rules for specific countries. Gets copied, so changing it afterwards does nothing.
+	 */
+	public PricingEngine(@NotNull TaxRule defaultRule, @NotNull Map<Country, TaxRule> rules) {
+		this.defaultRule = defaultRule;
+		this.rules = Collections.unmodifiableMap(new HashMap<>(rules));
+	}
+
+	/**
+	 * Creates a new engine which has the same rules as this one, but with a different rule for a given country.
+	 *
+	 * @param country The country to set the rule for.
+	 * @param rule    The rule for this country.
+	 * @return The new engine.
+	 */
+	@NotNull
+	public PricingEngine withRule(@NotNull Country country, @NotNull TaxRule rule) {
+		HashMap<Country, TaxRule> copy = new HashMap<>(rules);
+		copy.put(country, rule);
+		return new PricingEngine(defaultRule, copy);
+	}
+
+	/**
+	 * Gets the rule that applies to shipments to a given country.
+	 *
+	 * @param destination The destination country.
+	 * @return The rule for this country.
+	 */
+	@NotNull
+	public TaxRule getRule(@NotNull Country destination) {
+		return rules.getOrDefault(destination, defaultRule);
+	}
+
+	/**
+	 * Calculates the final price of a single service.
+	 *
+	 * @param service     The service to calculate the price for.
+	 * @param destination The country the shipment goes to.
+	 * @return The price with markup and tax in cents.
+	 */
+	public int getPrice(@NotNull Service service, @NotNull Country destination) {
+		return getRule(destination).apply(service.priceInCents);
+	}
+
+	/**
+	 * Calculates the final prices for all the services of a query.
+	 *
+	 * @param services    The services to calculate the prices for.
+	 * @param destination The country the shipment goes to.
+	 * @return The prices with markup and tax in cents, in the same order as the services.
+	 */
+	@NotNull
+	public int[] getPrices(@NotNull Service[] services, @NotNull Country destination) {
+		int[] result = new int[services.length];
+		getPrices(services, destination, result);
+		return result;
+	}
+
+	/**
+	 * Calculates the final prices for all the services of a query and writes them to an existing array,
+	 * so the array can be reused when repricing a lot of queries.
+	 *
+	 * @param services    The services to calculate the prices for.
+	 * @param destination The country the shipment goes to.
+	 * @param target      The array to write the prices to. Needs to be at least as long as the services.
+	 */
+	public void getPrices(@NotNull Service[] services, @NotNull Country destination, @NotNull int[] target) {
+		if (target.length < services.length) throw new IllegalArgumentException("Target array too small");
+		TaxRule rule = getRule(destination);   // Only look it up once, the rest is just a loop over ints.
+		for (int i = 0; i < services.length; i++) {
+			target[i] = rule.apply(services[i].priceInCents);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package de.tgx03.packlink.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+
+/**
+ * A store for quotes shared by all the nodes querying the API, so a lane only needs to be queried once per cluster.
+ * The quotes get stored in their serialized form, the backend doesn't need to know anything about services.
+ * Implementations need to be thread-safe.
+ */
+public interface QuoteBackend {
+
+	/**
+	 * Gets a stored quote.
+	 *
+	 * @param key The key of the lane.
+	 * @return The stored quote, or null if there is none or it already expired.
+	 * @throws IOException The backend couldn't be reached.
+	 */
+	@Nullable
+	Entry get(@NotNull String key) throws IOException;
+
+	/**
+	 * Stores a quote, replacing the previous one for this lane.
+	 *
+	 * @param key   The key of the lane.
+	 * @param entry The quote to store.
+	 * @throws IOException The backend couldn't be reached.
+	 */
+	void put(@NotNull String key, @NotNull Entry entry) throws IOException;
+
+	/**
+	 * Removes a quote and tells all the nodes about it, so they drop their local copy as well.
+	 *
+	 * @param key The key of the lane.
+	 * @throws IOException The backend couldn't be reached.
+	 */
+	void invalidate(@NotNull String key) throws IOException;
+
+	/**
+	 * Tries to get the right to load a lane from the API, so only one node in the cluster does it at a time.
+	 * The lease runs out on its own after the given time, so a node dying while loading doesn't block the lane forever.
+	 *
+	 * @param key   The key of the lane.
+	 * @param lease How long the lease is valid in milliseconds.
+	 * @return Whether this node got the lease. If not, another node is already loading the lane.
+	 * @throws IOException The backend couldn't be reached.
+	 */
+	boolean tryAcquireLoad(@NotNull String key, long lease) throws IOException;
+
+	/**
+	 * Gives back the lease to load a lane, after the quote got stored or loading it failed.
+	 * Does nothing if this node doesn't hold the lease anymore.
+	 *
+	 * @param key The key of the lane.
+	 * @throws IOException The backend couldn't be reached.
+	 */
+	void releaseLoad(@NotNull String key) throws IOException;
+
+	/**
+	 * Registers a listener getting called for every lane any node invalidated.
+	 * Invalidations made through this backend get reported right away, the ones of other nodes as soon as they're seen.
+	 * The listener may get called from any thread.
+	 *
+	 * @param listener The listener to register.
+	 */
+	void addInvalidationListener(@NotNull InvalidationListener listener);
+
+	/**
+	 * Gets told about invalidated lanes.
+	 */
+	@FunctionalInterface
+	interface InvalidationListener {
+
+		/**
+		 * Gets called when a lane got invalidated.
+		 * As other nodes may only be seen a while later, the time tells which quotes and loads are affected.
+		 *
+		 * @param key  The key of the lane.
+		 * @param time When the lane got invalidated in milliseconds since the epoch, according to the invalidating node.
+		 */
+		void invalidated(@NotNull String key, long time);
+	}
+
+	/**
+	 * A stored quote.
+	 *
+	 * @param data      The serialized services.
+	 * @param expiresAt When the quote expires in milliseconds since the epoch.
+	 */
+	record Entry(@NotNull byte[] data, long expiresAt) {
+
+		/**
+		 * Whether this quote already expired.
+		 *
+		 * @param now The current time in milliseconds since the epoch.
+		 * @return Whether it expired.
+		 */
+		public boolean isExpired(long now) {
+			return now >= expiresAt;
+		}
+	}
+}
@@ -0,0 +1,328 @@
+package de.tgx03.packlink.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A two-tier cache for the services of a lane.
+ * In front sits a map in this process, behind it a backend shared by all the nodes,
+ * so a lane only gets queried from the API once per time to live, no matter how many nodes there are.
+ * If multiple threads of a node want the same lane at once, only one of them actually loads it,
+ * and across nodes only the one holding the lease of the backend queries the API while the others wait for its result.
+ * If the backend fails in any way, the lane just gets loaded from the API, the cache should never be the reason a query fails.
+ */
+public final class QuoteCache {
+
+	/**
+	 * How long to wait in milliseconds before checking again whether another node finished loading a lane.
+	 */
+	private static final long LOAD_POLL = 50;
+
+	/**
+	 * The backend shared by all the nodes.
+	 */
+	private final QuoteBackend backend;
+	/**
+	 * How long a quote is valid in milliseconds.
+	 */
+	private final long ttl;
+	/**
+	 * How long in milliseconds a node may take to load a lane before another node takes over.
+	 */
+	private final long loadLease;
+	/**
+	 * How many lanes the local map may hold before expired quotes get removed from it.
+	 */
+	private final int maxLocalEntries;
+	/**
+	 * The quotes already known to this node.
+	 */
+	private final ConcurrentHashMap<String, LocalEntry> local = new ConcurrentHashMap<>();
+	/**
+	 * The lanes currently getting loaded by a thread of this node.
+	 * If a lane gets invalidated after its load started, it gets removed from here, so the outdated result doesn't get stored.
+	 */
+	private final ConcurrentHashMap<String, Load> loading = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param backend         The backend shared by all the nodes.
+	 * @param ttl             How long a quote is valid.
+	 * @param loadLease       How long a node may take to query a lane before other nodes stop waiting for it.
+	 * @param maxLocalEntries How many lanes to keep in this process before cleaning up.
+	 * @throws IllegalArgumentException One of the durations isn't positive or no lanes may be kept.
+	 */
+	public QuoteCache(@NotNull QuoteBackend backend, @NotNull Duration ttl, @NotNull Duration loadLease, int maxLocalEntries) {
+		if (ttl.toMillis() <= 0 || loadLease.toMillis() <= 0) throw new IllegalArgumentException("Durations need to be positive");
+		if (maxLocalEntries <= 0) throw new IllegalArgumentException("At least one lane needs to be kept");
+		this.backend = backend;
+		this.ttl = ttl.toMillis();
+		this.loadLease = loadLease.toMillis();
+		this.maxLocalEntries = maxLocalEntries;
+		backend.addInvalidationListener(this::invalidateLocally);
+	}
+
+	/**
+	 * Creates the key of a lane, which is the same on every node.
+	 * Every string gets prefixed with its length, so no zip or weight can make two lanes look the same,
+	 * and the result gets hashed, so the key can be used anywhere without escaping anything.
+	 *
+	 * @param source  The source address.
+	 * @param target  The target address.
+	 * @param parcels All the parcels of the shipment.
+	 * @return The key of this lane.
+	 */
+	@NotNull
+	static String key(@NotNull Address source, @NotNull Address target, @NotNull Parcel... parcels) {
+		StringBuilder builder = new StringBuilder(32 + parcels.length * 16);
+		appendString(builder, source.country.iso);
+		appendString(builder, source.zip);
+		appendString(builder, target.country.iso);
+		appendString(builder, target.zip);
+		for (Parcel parcel : parcels) {
+			appendString(builder, parcel.weight);
+			builder.append(parcel.height).append(',').append(parcel.length).append(',').append(parcel.width).append(';');
+		}
+		return ResponseCache.hash(builder.toString());
+	}
+
+	/**
+	 * Appends a string to a key together with its length.
+	 *
+	 * @param builder The builder of the key.
+	 * @param string  The string to append.
+	 */
+	private static void appendString(@NotNull StringBuilder builder, @NotNull String string) {
+		builder.append(string.length()).append(':').append(string);
+	}
+
+	/**
+	 * Gets the services of a lane, loading them if no node knows them yet.
+	 *
+	 * @param source  The source address.
+	 * @param target  The target address.
+	 * @param loader  Queries the API if the lane isn't cached anywhere.
+	 * @param parcels All the parcels of the shipment.
+	 * @return The services of this lane. The array belongs to the caller.
+	 * @throws IOException The loader failed.
+	 */
+	@NotNull
+	Service[] get(@NotNull Address source, @NotNull Address target, @NotNull Loader loader, @NotNull Parcel... parcels) throws IOException {
+		String key = key(source, target, parcels);
+		LocalEntry entry = local.get(key);
+		if (entry != null && entry.expiresAt > System.currentTimeMillis()) return entry.services.clone();
+
+		Load load = new Load(new CompletableFuture<>(), System.currentTimeMillis());
+		Load running = loading.putIfAbsent(key, load);
+		if (running != null) {
+			try {
+				return running.future.get().services.clone();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for quote", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException io) throw io;
+				throw new IOException(e.getCause());
+			}
+		}
+		try {
+			entry = load(key, loader, load);
+			load.future.complete(entry);
+			return entry.services.clone();
+		} catch (IOException | RuntimeException e) {
+			load.future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(key, load);
+		}
+	}
+
+	/**
+	 * Gets the services of a lane from the backend, or from the loader if the backend doesn't have them either.
+	 * Before querying the API the lease of the backend gets acquired. If another node holds it,
+	 * this node waits for that one to store its result, or for the lease to run out.
+	 *
+	 * @param key    The key of the lane.
+	 * @param loader Queries the API.
+	 * @param load   This load, to check whether the lane got invalidated in the meantime.
+	 * @return The loaded quote.
+	 * @throws IOException The loader failed.
+	 */
+	@NotNull
+	private LocalEntry load(@NotNull String key, @NotNull Loader loader, @NotNull Load load) throws IOException {
+		LocalEntry entry = getShared(key);
+		while (entry == null) {
+			boolean leased;
+			try {
+				leased = backend.tryAcquireLoad(key, loadLease);
+			} catch (IOException | RuntimeException e) {
+				e.printStackTrace();
+				return store(key, loader.load(), load); // Can't coordinate with the other nodes, so just query it.
+			}
+			if (leased) {
+				try {
+					entry = getShared(key);  // Another node may have stored it right before giving back its lease.
+					if (entry == null) return store(key, loader.load(), load);
+				} finally {
+					release(key);
+				}
+			} else {
+				try {
+					Thread.sleep(LOAD_POLL);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while waiting for quote", e);
+				}
+				entry = getShared(key);
+			}
+		}
+		if (loading.get(key) == load) putLocal(key, entry);
+		return entry;
+	}
+
+	/**
+	 * Gets the quote of a lane from the backend.
+	 * If it can't be read for whatever reason, that's just treated as a miss.
+	 *
+	 * @param key The key of the lane.
+	 * @return The quote, or null if the backend doesn't hold a valid one.
+	 */
+	@Nullable
+	private LocalEntry getShared(@NotNull String key) {
+		try {
+			QuoteBackend.Entry shared = backend.get(key);
+			if (shared == null || shared.isExpired(System.currentTimeMillis())) return null;
+			return new LocalEntry(QuoteCodec.decode(shared.data()), shared.expiresAt());
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();    // Broken or written by a different version, it gets replaced by whoever loads the lane now.
+			return null;
+		}
+	}
+
+	/**
+	 * Stores freshly loaded services in the local map and the backend,
+	 * unless the lane got invalidated while they were loading.
+	 * If the backend fails, the services still get returned, they were expensive enough to get.
+	 *
+	 * @param key      The key of the lane.
+	 * @param services The loaded services.
+	 * @param load     This load.
+	 * @return The quote.
+	 */
+	@NotNull
+	private LocalEntry store(@NotNull String key, @NotNull Service[] services, @NotNull Load load) {
+		long expiresAt = System.currentTimeMillis() + ttl;
+		LocalEntry entry = new LocalEntry(services.clone(), expiresAt);
+		if (loading.get(key) != load) return entry;
+		try {
+			backend.put(key, new QuoteBackend.Entry(QuoteCodec.encode(services), expiresAt));
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();
+		}
+		putLocal(key, entry);
+		return entry;
+	}
+
+	/**
+	 * Gives back the lease of a lane. A failure only gets logged, the lease runs out on its own anyway.
+	 *
+	 * @param key The key of the lane.
+	 */
+	private void release(@NotNull String key) {
+		try {
+			backend.releaseLoad(key);
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Puts a quote into the local map, making room first if it's full.
+	 *
+	 * @param key   The key of the lane.
+	 * @param entry The quote.
+	 */
+	private void putLocal(@NotNull String key, @NotNull LocalEntry entry) {
+		if (local.size() >= maxLocalEntries) removeExpired();
+		local.put(key, entry);
+	}
+
+	/**
+	 * Removes all the expired quotes from the local map.
+	 * If that doesn't free anything, the whole map gets cleared, the quotes are still in the backend after all.
+	 */
+	private void removeExpired() {
+		long now = System.currentTimeMillis();
+		local.values().removeIf(entry -> entry.expiresAt <= now);
+		if (local.size() >= maxLocalEntries) local.clear();
+	}
+
+	/**
+	 * Removes the quote of a lane from this node and the backend and tells all the other nodes to drop it as well.
+	 *
+	 * @param source  The source address.
+	 * @param target  The target address.
+	 * @param parcels All the parcels of the shipment.
+	 * @throws IOException The backend couldn't be reached.
+	 */
+	public void invalidate(@NotNull Address source, @NotNull Address target, @NotNull Parcel... parcels) throws IOException {
+		String key = key(source, target, parcels);
+		invalidateLocally(key, System.currentTimeMillis());
+		backend.invalidate(key);
+	}
+
+	/**
+	 * Drops the quote of a lane from this node if it was created before the invalidation,
+	 * and cancels a load for it if that started before the invalidation, so its result doesn't get stored over it.
+	 * Quotes and loads of the lane started afterwards stay, as they already see the invalidated state.
+	 * As the time may come from another node, this is only as exact as the clocks of the nodes are in sync.
+	 *
+	 * @param key  The key of the lane.
+	 * @param time When the lane got invalidated.
+	 */
+	private void invalidateLocally(@NotNull String key, long time) {
+		local.computeIfPresent(key, (k, entry) -> entry.expiresAt - ttl <= time ? null : entry);
+		loading.computeIfPresent(key, (k, load) -> load.startedAt <= time ? null : load);
+	}
+
+	/**
+	 * Loads the services of a lane if they aren't cached.
+	 */
+	@FunctionalInterface
+	interface Loader {
+
+		/**
+		 * Loads the services.
+		 *
+		 * @return The services of the lane.
+		 * @throws IOException Something went wrong while querying the API.
+		 */
+		@NotNull
+		Service[] load() throws IOException;
+	}
+
+	/**
+	 * A quote known to this node.
+	 *
+	 * @param services  The services of the lane. Never handed out directly, only copies of it.
+	 * @param expiresAt When the quote expires in milliseconds since the epoch.
+	 */
+	private record LocalEntry(@NotNull Service[] services, long expiresAt) {
+	}
+
+	/**
+	 * A load of a lane running on this node.
+	 *
+	 * @param future    Gets completed with the result, so other threads wanting the same lane can wait for it.
+	 * @param startedAt When the load started in milliseconds since the epoch.
+	 */
+	private record Load(@NotNull CompletableFuture<LocalEntry> future, long startedAt) {
+	}
+}
@@ -0,0 +1,110 @@
+package de.tgx03.packlink.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Converts the services of a query to a compact binary form and back, so they can be shared between nodes.
+ * As most services of a query come from the same few carriers, all the names get stored once in a table
+ * and the services only reference them by their index.
+ */
+final class QuoteCodec {
+
+	/**
+	 * The version of the format, so old data doesn't get misread if it ever changes.
+	 */
+	private static final byte VERSION = 1;
+	/**
+	 * The flag set if a service gets picked up.
+	 */
+	private static final byte PICKUP = 1;
+	/**
+	 * The flag set if a service gets delivered to a parcel shop.
+	 */
+	private static final byte PARCELSHOP = 2;
+
+	/**
+	 * Makes no sense to instantiate this class.
+	 *
+	 * @throws IllegalAccessException No!
+	 */
+	private QuoteCodec() throws IllegalAccessException {
+		throw new IllegalAccessException("Nope");
+	}
+
+	/**
+	 * Converts services to their binary form.
+	 *
+	 * @param services The services to convert.
+	 * @return The binary form.
+	 */
+	@NotNull
+	static byte[] encode(@NotNull Service[] services) {
+		HashMap<String, Integer> indices = new HashMap<>();
+		ArrayList<String> strings = new ArrayList<>();
+		for (Service service : services) {
+			if (indices.putIfAbsent(service.carrier, strings.size()) == null) strings.add(service.carrier);
+			if (indices.putIfAbsent(service.serviceName, strings.size()) == null) strings.add(service.serviceName);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + strings.size() * 16 + services.length * 10);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(VERSION);
+			out.writeShort(strings.size());
+			for (String string : strings) {
+				out.writeUTF(string);
+			}
+			out.writeShort(services.length);
+			for (Service service : services) {
+				out.writeShort(indices.get(service.carrier));
+				out.writeShort(indices.get(service.serviceName));
+				out.writeInt(service.priceInCents);
+				out.writeByte(service.serviceType == null ? -1 : service.serviceType.ordinal());
+				out.writeByte(service.duration);
+				out.writeByte((service.pickup ? PICKUP : 0) | (service.deliveryToParcelshop ? PARCELSHOP : 0));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);    // Can't happen, it's all in memory.
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Converts the binary form back to services.
+	 *
+	 * @param data The binary form.
+	 * @return The services.
+	 * @throws IOException The data is broken or was written in a different version.
+	 */
+	@NotNull
+	static Service[] decode(@NotNull byte[] data) throws IOException {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+			if (in.readByte() != VERSION) throw new IOException("Unknown quote format");
+			String[] strings = new String[in.readUnsignedShort()];
+			for (int i = 0; i < strings.length; i++) {
+				strings[i] = in.readUTF().intern();
+			}
+			Service.Type[] types = Service.Type.values();
+			Service[] result = new Service[in.readUnsignedShort()];
+			for (int i = 0; i < result.length; i++) {
+				String carrier = strings[in.readUnsignedShort()];
+				String name = strings[in.readUnsignedShort()];
+				int price = in.readInt();
+				byte type = in.readByte();
+				byte duration = in.readByte();
+				byte flags = in.readByte();
+				result[i] = new Service(carrier, name, price, type < 0 ? null : types[type], duration, (flags & PICKUP) != 0, (flags & PARCELSHOP) != 0);
+			}
+			return result;
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Broken quote data", e);
+		}
+	}
+}
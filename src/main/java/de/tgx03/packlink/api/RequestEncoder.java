@@ -0,0 +1,177 @@
+package de.tgx03.packlink.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes the URL of a service request into a reusable buffer.
+ * All the fixed parts of the URL get encoded once when the encoder gets created,
+ * and the zip codes get encoded once per address, so building a request only copies bytes around.
+ * An encoder isn't thread-safe, so every thread needs its own one.
+ */
+final class RequestEncoder {
+
+	/**
+	 * The template for the source country.
+	 */
+	private static final byte[] FROM_COUNTRY = template("from[country]", "=");
+	/**
+	 * The template for the source zip.
+	 */
+	private static final byte[] FROM_ZIP = template("&", "from[zip]", "=");
+	/**
+	 * The template for the target country.
+	 */
+	private static final byte[] TO_COUNTRY = template("&", "to[country]", "=");
+	/**
+	 * The template for the target zip.
+	 */
+	private static final byte[] TO_ZIP = template("&", "to[zip]", "=");
+	/**
+	 * The template at the start of every parcel parameter.
+	 */
+	private static final byte[] PACKAGE = template("&", "packages[");
+	/**
+	 * The template specifying the weight of a package.
+	 */
+	private static final byte[] WEIGHT = template("][weight]", "=");
+	/**
+	 * The template specifying the height of a package.
+	 */
+	private static final byte[] HEIGHT = template("][height]", "=");
+	/**
+	 * The template specifying the length of a package.
+	 */
+	private static final byte[] LENGTH = template("][length]", "=");
+	/**
+	 * The template specifying the width of a package.
+	 */
+	private static final byte[] WIDTH = template("][width]", "=");
+
+	/**
+	 * The start of every URL, meaning the API and the endpoint.
+	 */
+	private final byte[] prefix;
+	/**
+	 * The buffer the URL gets written to.
+	 */
+	private byte[] buffer = new byte[256];
+	/**
+	 * How many bytes of the buffer are currently in use.
+	 */
+	private int length;
+
+	/**
+	 * Creates a new encoder.
+	 *
+	 * @param prefix The start of the URL, including the question mark.
+	 */
+	RequestEncoder(@NotNull String prefix) {
+		this.prefix = prefix.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Creates a template from its parts.
+	 * Separators get taken as they are, everything else gets URL encoded.
+	 *
+	 * @param parts The parts of the template.
+	 * @return The bytes of the template.
+	 */
+	@NotNull
+	private static byte[] template(@NotNull String... parts) {
+		StringBuilder builder = new StringBuilder();
+		for (String part : parts) {
+			if (part.equals("&") || part.equals("=")) builder.append(part);
+			else builder.append(URLEncoder.encode(part, StandardCharsets.UTF_8));
+		}
+		return builder.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Writes the URL for a service request into the buffer, replacing whatever was in there before.
+	 *
+	 * @param source  The source address.
+	 * @param target  The target address.
+	 * @param parcels All the parcels to be included.
+	 * @return This encoder.
+	 */
+	@NotNull
+	RequestEncoder encode(@NotNull Address source, @NotNull Address target, @NotNull Parcel... parcels) {
+		if (parcels.length == 0) throw new IllegalArgumentException("At least one parcel required");
+		length = 0;
+		append(prefix);
+		append(FROM_COUNTRY).append(source.country.isoBytes());
+		append(FROM_ZIP).append(source.encodedZip());
+		append(TO_COUNTRY).append(target.country.isoBytes());
+		append(TO_ZIP).append(target.encodedZip());
+		for (int i = 0; i < parcels.length; i++) {
+			Parcel parcel = parcels[i];
+			append(PACKAGE).append(i).append(WEIGHT).append(parcel.weightBytes());
+			if (parcel.height > 0 && parcel.width > 0 && parcel.length > 0) {
+				append(PACKAGE).append(i).append(HEIGHT).append(parcel.height);
+				append(PACKAGE).append(i).append(LENGTH).append(parcel.length);
+				append(PACKAGE).append(i).append(WIDTH).append(parcel.width);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Appends some bytes to the buffer.
+	 *
+	 * @param bytes The bytes to append.
+	 * @return This encoder.
+	 */
+	@NotNull
+	private RequestEncoder append(@NotNull byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, length, bytes.length);
+		length += bytes.length;
+		return this;
+	}
+
+	/**
+	 * Appends the decimal representation of a non-negative number to the buffer.
+	 *
+	 * @param value The number to append.
+	 * @return This encoder.
+	 */
+	@NotNull
+	private RequestEncoder append(int value) {
+		int digits = 1;
+		for (int i = value; i >= 10; i /= 10) digits++;
+		ensureCapacity(digits);
+		for (int i = length + digits - 1; i >= length; i--) {
+			buffer[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		length += digits;
+		return this;
+	}
+
+	/**
+	 * Makes sure the buffer has room for some more bytes.
+	 *
+	 * @param additional How many bytes are going to be appended.
+	 */
+	private void ensureCapacity(int additional) {
+		if (length + additional > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additional));
+		}
+	}
+
+	/**
+	 * Gives back the URL currently in the buffer.
+	 * As the URL only consists of ASCII characters, this is a plain copy of the buffer.
+	 *
+	 * @return The URL.
+	 */
+	@Override
+	@NotNull
+	public String toString() {
+		return new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+	}
+}
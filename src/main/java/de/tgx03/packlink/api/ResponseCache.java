@@ -0,0 +1,157 @@
+package de.tgx03.packlink.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A cache on disk for responses of the API that rarely change, like the countries and postal codes.
+ * Every response gets stored in its own file, starting with the ETag and Last-Modified header of the response
+ * followed by the gzipped body, so the validators can be read without decompressing anything.
+ * Files get replaced atomically, so multiple threads can use the cache at once as long as they query different URLs.
+ */
+final class ResponseCache {
+
+	/**
+	 * The file extension of the cache files.
+	 */
+	private static final String EXTENSION = ".cache";
+
+	/**
+	 * The directory the responses get stored in.
+	 */
+	private final Path directory;
+
+	/**
+	 * Creates a new cache in a given directory. If it doesn't exist yet, it gets created.
+	 *
+	 * @param directory The directory to store the responses in.
+	 * @throws IOException The directory couldn't be created.
+	 */
+	ResponseCache(@NotNull Path directory) throws IOException {
+		this.directory = Files.createDirectories(directory);
+	}
+
+	/**
+	 * Hashes a string to something that can be used as a file name.
+	 *
+	 * @param string The string to hash.
+	 * @return The SHA-256 hash of the string in hex.
+	 */
+	@NotNull
+	static String hash(@NotNull String string) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(string.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(hash);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every Java implementation has to support SHA-256", e);
+		}
+	}
+
+	/**
+	 * Gets the file a given URL gets stored in.
+	 * The URL gets hashed, as it's full of characters you don't want in a file name.
+	 *
+	 * @param url The URL of the response.
+	 * @return The file of this URL.
+	 */
+	@NotNull
+	private Path fileOf(@NotNull String url) {
+		return directory.resolve(hash(url) + EXTENSION);
+	}
+
+	/**
+	 * Reads the validators of a cached response.
+	 *
+	 * @param url The URL of the response.
+	 * @return The validators, or null if nothing usable is cached for this URL.
+	 */
+	@Nullable
+	Validators getValidators(@NotNull String url) {
+		Path file = fileOf(url);
+		if (!Files.isRegularFile(file)) return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 512))) {
+			return new Validators(in.readUTF(), in.readUTF());
+		} catch (IOException e) {
+			return null;    // A broken file is just treated as a miss and gets overwritten with the next response.
+		}
+	}
+
+	/**
+	 * Reads the body of a cached response.
+	 *
+	 * @param url The URL of the response.
+	 * @return The body of the response.
+	 * @throws IOException Nothing is cached for this URL or the file is broken.
+	 */
+	@NotNull
+	String getBody(@NotNull String url) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(fileOf(url))))) {
+			in.readUTF();
+			in.readUTF();
+			return new String(new GZIPInputStream(in).readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Stores a response, replacing whatever was cached for this URL before.
+	 *
+	 * @param url        The URL of the response.
+	 * @param validators The validators the server sent with the response.
+	 * @param body       The body of the response.
+	 * @throws IOException The response couldn't be written.
+	 */
+	void store(@NotNull String url, @NotNull Validators validators, @NotNull String body) throws IOException {
+		Path file = fileOf(url);
+		Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeUTF(validators.eTag);
+				out.writeUTF(validators.lastModified);
+				try (OutputStream zip = new GZIPOutputStream(out)) {
+					zip.write(body.getBytes(StandardCharsets.UTF_8));
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * The headers of a response used to check with the server whether it changed.
+	 *
+	 * @param eTag         The ETag of the response, empty if there was none.
+	 * @param lastModified The Last-Modified date of the response, empty if there was none.
+	 */
+	record Validators(@NotNull String eTag, @NotNull String lastModified) {
+
+		/**
+		 * Creates the validators from the headers of a response.
+		 *
+		 * @param eTag         The ETag header, may be null.
+		 * @param lastModified The Last-Modified header, may be null.
+		 * @return The validators, or null if the server sent neither header.
+		 */
+		@Nullable
+		static Validators of(@Nullable String eTag, @Nullable String lastModified) {
+			if (eTag == null && lastModified == null) return null;
+			return new Validators(eTag == null ? "" : eTag, lastModified == null ? "" : lastModified);
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package de.tgx03.packlink.api;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONObject;
 
@@ -41,9 +42,10 @@ public class Service implements Serializable {
 	private static final String DELIVERY_TO_PARCELSHOP = "delivery_to_parcelshop";
 
 	/**
-	 * The tax rate to apply when requesting the price with tax.
+	 * The rule to apply when requesting the price with tax.
+	 * Only ever gets swapped as a whole, so readers always see a consistent rule.
 	 */
-	private static double tax = 0;
+	private static volatile TaxRule tax = TaxRule.NONE;
 
 	/**
 	 * The name of the carrier of this shipment.
@@ -113,20 +115,34 @@ public class Service implements Serializable {
 	 * Set the tax rate to apply when requesting a price with tax.
 	 *
 	 * @param tax The tax rate to apply.
+	 * @throws IllegalArgumentException The rate is negative, NaN or infinite.
+	 * @throws ArithmeticException      The rate is above 2147, which can't be stored with integers.
+	 * @deprecated This is global for all threads and countries, use a {@link PricingEngine} instead.
 	 */
+	@Deprecated
 	public static void setTax(double tax) {
-		Service.tax = tax;
+		Service.tax = TaxRule.ofTax(tax);
 	}
 
 	/**
 	 * Calculates the price of this service with the given static tax rate.
 	 *
 	 * @return The price with tax.
+	 * @deprecated Depends on the global tax rate, use {@link #getPriceWithTax(TaxRule)} or a {@link PricingEngine} instead.
 	 */
+	@Deprecated
 	public int getPriceWithTax() {
-		double tax = priceInCents * Service.tax;
-		double result = priceInCents + tax;
-		return (int) Math.round(result);
+		return tax.apply(priceInCents);
+	}
+
+	/**
+	 * Calculates the price of this service with a given rule.
+	 *
+	 * @param rule The rule to apply.
+	 * @return The price with markup and tax in cents.
+	 */
+	public int getPriceWithTax(@NotNull TaxRule rule) {
+		return rule.apply(priceInCents);
 	}
 
 	@Override
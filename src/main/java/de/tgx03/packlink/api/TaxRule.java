@@ -0,0 +1,142 @@
+package de.tgx03.packlink.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * An immutable rule describing how the net price of a service gets turned into the price a customer pays.
+ * First the markup gets applied, then the tax on top of the marked up price.
+ * Both rates are stored in parts per million, so all the calculations are done with integers
+ * and the same rule may be shared between any number of threads.
+ */
+public final class TaxRule {
+
+	/**
+	 * The fixed-point scale of the rates, meaning a rate of this value equals 100%.
+	 */
+	public static final int SCALE = 1_000_000;
+
+	/**
+	 * A rule that leaves the price untouched.
+	 */
+	public static final TaxRule NONE = new TaxRule(0, 0);
+
+	/**
+	 * The tax rate in parts per million.
+	 */
+	public final int taxRate;
+	/**
+	 * The markup rate in parts per million.
+	 */
+	public final int markupRate;
+
+	/**
+	 * Creates a new rule from fixed-point rates.
+	 *
+	 * @param taxRate    The tax rate in parts per million, so 190000 for 19%.
+	 * @param markupRate The markup rate in parts per million.
+	 * @throws IllegalArgumentException One of the rates is negative.
+	 */
+	public TaxRule(int taxRate, int markupRate) {
+		if (taxRate < 0 || markupRate < 0) throw new IllegalArgumentException("Rates may not be negative");
+		this.taxRate = taxRate;
+		this.markupRate = markupRate;
+	}
+
+	/**
+	 * Creates a new rule from rates given as fractions, so 0.19 for 19%.
+	 * The doubles only get converted once here, applying the rule never touches floating point.
+	 *
+	 * @param tax    The tax rate as a fraction.
+	 * @param markup The markup rate as a fraction.
+	 * @return The corresponding rule.
+	 * @throws IllegalArgumentException One of the rates is negative, NaN or infinite.
+	 * @throws ArithmeticException      One of the rates doesn't fit in parts per million, meaning it's above 2147.
+	 */
+	@NotNull
+	public static TaxRule of(double tax, double markup) {
+		return new TaxRule(toFixed(tax), toFixed(markup));
+	}
+
+	/**
+	 * Creates a new rule only applying tax.
+	 *
+	 * @param tax The tax rate as a fraction.
+	 * @return The corresponding rule.
+	 * @throws IllegalArgumentException The rate is negative, NaN or infinite.
+	 * @throws ArithmeticException      The rate doesn't fit in parts per million, meaning it's above 2147.
+	 */
+	@NotNull
+	public static TaxRule ofTax(double tax) {
+		return of(tax, 0);
+	}
+
+	/**
+	 * Converts a fraction to parts per million.
+	 *
+	 * @param rate The fraction to convert.
+	 * @return The rate in parts per million.
+	 * @throws IllegalArgumentException The rate is NaN or infinite.
+	 * @throws ArithmeticException      The rate doesn't fit in parts per million.
+	 */
+	private static int toFixed(double rate) {
+		if (!Double.isFinite(rate)) throw new IllegalArgumentException("Rates need to be finite numbers");
+		return Math.toIntExact(Math.round(rate * SCALE));
+	}
+
+	/**
+	 * Applies a single fixed-point rate to a price, rounding half up to the next cent.
+	 *
+	 * @param cents The price in cents.
+	 * @param rate  The rate in parts per million.
+	 * @return The price with the rate applied.
+	 */
+	private static int applyRate(int cents, int rate) {
+		if (rate == 0) return cents;
+		long scaled = (long) cents * (SCALE + rate);
+		return Math.toIntExact((scaled + SCALE / 2) / SCALE);
+	}
+
+	/**
+	 * Calculates the final price for a given net price.
+	 * The marked up price gets rounded to full cents before the tax gets applied, just like on an invoice.
+	 *
+	 * @param cents The net price in cents.
+	 * @return The price with markup and tax in cents.
+	 */
+	public int apply(int cents) {
+		return applyRate(applyRate(cents, markupRate), taxRate);
+	}
+
+	/**
+	 * Calculates the final prices for a whole array of net prices.
+	 *
+	 * @param cents  The net prices in cents.
+	 * @param target The array to write the results to. May be the same as the source.
+	 */
+	public void apply(@NotNull int[] cents, @NotNull int[] target) {
+		if (target.length < cents.length) throw new IllegalArgumentException("Target array too small");
+		for (int i = 0; i < cents.length; i++) {
+			target[i] = apply(cents[i]);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Tax " + taxRate + "ppm, Markup " + markupRate + "ppm";
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof TaxRule r) {
+			return this.taxRate == r.taxRate && this.markupRate == r.markupRate;
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(taxRate, markupRate);
+	}
+}
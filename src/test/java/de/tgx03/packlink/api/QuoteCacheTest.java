@@ -0,0 +1,202 @@
+package de.tgx03.packlink.api;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the quote cache, with two nodes sharing a {@link FileQuoteBackend} in a temporary directory.
+ */
+class QuoteCacheTest {
+
+	/**
+	 * How often the backends poll for invalidations.
+	 */
+	private static final Duration POLL = Duration.ofMillis(100);
+
+	/**
+	 * The source of all shipments.
+	 */
+	private static final Address SOURCE = new Address(country(), "10115");
+	/**
+	 * The target of all shipments.
+	 */
+	private static final Address TARGET = new Address(country(), "80331");
+	/**
+	 * The parcel of all shipments.
+	 */
+	private static final Parcel PARCEL = new Parcel("2");
+
+	@TempDir
+	Path directory;
+
+	/**
+	 * The backend of the first node.
+	 */
+	private FileQuoteBackend firstBackend;
+	/**
+	 * The backend of the second node.
+	 */
+	private FileQuoteBackend secondBackend;
+	/**
+	 * The cache of the first node.
+	 */
+	private QuoteCache first;
+	/**
+	 * The cache of the second node.
+	 */
+	private QuoteCache second;
+	/**
+	 * How often the API would have been queried.
+	 */
+	private final AtomicInteger calls = new AtomicInteger();
+	/**
+	 * Pretends to query the API, which takes a while.
+	 */
+	private final QuoteCache.Loader loader = () -> {
+		calls.incrementAndGet();
+		try {
+			Thread.sleep(300);
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		}
+		return new Service[]{new Service("DHL", "Paket", 499, Service.Type.STANDARD, (byte) 2, true, false)};
+	};
+
+	/**
+	 * Gets the country used for all addresses.
+	 *
+	 * @return Germany.
+	 */
+	private static Country country() {
+		return Country.getCountry(new JSONObject().put("name", "Germany").put("isoCode", "DE").put("hasPostalCodes", true));
+	}
+
+	@BeforeEach
+	void createNodes() throws IOException {
+		firstBackend = new FileQuoteBackend(directory, POLL);
+		secondBackend = new FileQuoteBackend(directory, POLL);
+		first = new QuoteCache(firstBackend, Duration.ofMinutes(5), Duration.ofSeconds(5), 100);
+		second = new QuoteCache(secondBackend, Duration.ofMinutes(5), Duration.ofSeconds(5), 100);
+	}
+
+	@AfterEach
+	void closeNodes() {
+		firstBackend.close();
+		secondBackend.close();
+	}
+
+	@Test
+	void concurrentNodesQueryOnce() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		try {
+			List<Future<Service[]>> results = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				QuoteCache node = i % 2 == 0 ? first : second;
+				results.add(executor.submit(() -> node.get(SOURCE, TARGET, loader, PARCEL)));
+			}
+			for (Future<Service[]> result : results) {
+				assertEquals(499, result.get()[0].priceInCents);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void invalidationReachesOtherNode() throws Exception {
+		first.get(SOURCE, TARGET, loader, PARCEL);
+		second.get(SOURCE, TARGET, loader, PARCEL);
+		assertEquals(1, calls.get());
+		first.invalidate(SOURCE, TARGET, PARCEL);
+		Thread.sleep(3 * POLL.toMillis());
+		second.get(SOURCE, TARGET, loader, PARCEL);
+		assertEquals(2, calls.get());
+		first.get(SOURCE, TARGET, loader, PARCEL);
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	void ownInvalidationDoesNotCancelLaterLoads() throws Exception {
+		first.get(SOURCE, TARGET, loader, PARCEL);
+		first.invalidate(SOURCE, TARGET, PARCEL);
+		for (int i = 0; i < 3; i++) {
+			first.get(SOURCE, TARGET, loader, PARCEL);
+		}
+		Thread.sleep(3 * POLL.toMillis());
+		first.get(SOURCE, TARGET, loader, PARCEL);
+		second.get(SOURCE, TARGET, loader, PARCEL);
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	void brokenQuoteIsAMiss() throws Exception {
+		first.get(SOURCE, TARGET, loader, PARCEL);
+		String key = QuoteCache.key(SOURCE, TARGET, PARCEL);
+		QuoteBackend.Entry stored = firstBackend.get(key);
+		assertNotNull(stored);
+		byte[] data = stored.data().clone();
+		data[0]++;  // Pretend it was written by another version.
+		firstBackend.put(key, new QuoteBackend.Entry(data, stored.expiresAt()));
+		assertEquals(499, second.get(SOURCE, TARGET, loader, PARCEL)[0].priceInCents);
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	void staleLockGetsTakenOver() throws Exception {
+		assertTrue(firstBackend.tryAcquireLoad("lane", 200));
+		assertFalse(secondBackend.tryAcquireLoad("lane", 200));
+		Thread.sleep(300);  // The first node died while loading.
+		assertTrue(secondBackend.tryAcquireLoad("lane", 200));
+		firstBackend.releaseLoad("lane");   // Mustn't remove the lock of the second node.
+		assertFalse(firstBackend.tryAcquireLoad("lane", 200));
+		secondBackend.releaseLoad("lane");
+		assertTrue(firstBackend.tryAcquireLoad("lane", 200));
+	}
+
+	@Test
+	void sweepRemovesOnlyExpiredQuotes() throws Exception {
+		firstBackend.put("expired", new QuoteBackend.Entry(new byte[]{1}, System.currentTimeMillis() - 1));
+		firstBackend.put("fresh", new QuoteBackend.Entry(new byte[]{2}, System.currentTimeMillis() + 60_000));
+		firstBackend.sweep();
+		try (var files = Files.list(directory)) {
+			assertEquals(1, files.filter(file -> file.toString().endsWith(".quote")).count());
+		}
+		assertNull(firstBackend.get("expired"));
+		assertNotNull(firstBackend.get("fresh"));
+	}
+
+	@Test
+	void differentZipsGetDifferentKeys() {
+		Address lineBreak = new Address(TARGET.country, "1\n2");
+		Address space = new Address(TARGET.country, "1 2");
+		assertFalse(QuoteCache.key(SOURCE, lineBreak, PARCEL).equals(QuoteCache.key(SOURCE, space, PARCEL)));
+	}
+
+	@Test
+	void rejectsInvalidSettings() {
+		assertThrows(IllegalArgumentException.class, () -> new QuoteCache(firstBackend, Duration.ofMinutes(1), Duration.ofSeconds(1), 0));
+		assertThrows(IllegalArgumentException.class, () -> new QuoteCache(firstBackend, Duration.ZERO, Duration.ofSeconds(1), 10));
+	}
+}
@@ -0,0 +1,59 @@
+package de.tgx03.packlink.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for the binary form of services.
+ */
+class QuoteCodecTest {
+
+	@Test
+	void roundTrip() throws IOException {
+		Service[] services = {
+				new Service("DHL", "Paket", 499, Service.Type.STANDARD, (byte) 2, true, false),
+				new Service("DHL", "Express", 1299, Service.Type.EXPRESS, (byte) 1, false, true),
+				new Service("UPS", "Saver", 899, null, (byte) 3, true, true)
+		};
+		Service[] decoded = QuoteCodec.decode(QuoteCodec.encode(services));
+		assertEquals(services.length, decoded.length);
+		for (int i = 0; i < services.length; i++) {
+			assertEquals(services[i].carrier, decoded[i].carrier);
+			assertEquals(services[i].serviceName, decoded[i].serviceName);
+			assertEquals(services[i].priceInCents, decoded[i].priceInCents);
+			assertEquals(services[i].serviceType, decoded[i].serviceType);
+			assertEquals(services[i].duration, decoded[i].duration);
+			assertEquals(services[i].pickup, decoded[i].pickup);
+			assertEquals(services[i].deliveryToParcelshop, decoded[i].deliveryToParcelshop);
+		}
+		assertNull(decoded[2].serviceType);
+		assertSame(decoded[0].carrier, decoded[1].carrier);
+	}
+
+	@Test
+	void emptyQuote() throws IOException {
+		assertArrayEquals(new Service[0], QuoteCodec.decode(QuoteCodec.encode(new Service[0])));
+	}
+
+	@Test
+	void rejectsOtherVersion() {
+		byte[] data = QuoteCodec.encode(new Service[]{new Service("DHL", "Paket", 499, Service.Type.STANDARD, (byte) 2, true, false)});
+		data[0]++;
+		assertThrows(IOException.class, () -> QuoteCodec.decode(data));
+	}
+
+	@Test
+	void rejectsBrokenData() {
+		byte[] data = QuoteCodec.encode(new Service[]{new Service("DHL", "Paket", 499, Service.Type.STANDARD, (byte) 2, true, false)});
+		byte[] truncated = new byte[data.length - 3];
+		System.arraycopy(data, 0, truncated, 0, truncated.length);
+		assertThrows(IOException.class, () -> QuoteCodec.decode(truncated));
+	}
+}